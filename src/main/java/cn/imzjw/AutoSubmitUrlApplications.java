@@ -2,6 +2,7 @@ package cn.imzjw;
 
 
 import cn.imzjw.service.AutoSubmitUrlServiceImpl;
+import cn.imzjw.utils.GoogleCredentialManager;
 import cn.imzjw.utils.ReptileRssTools;
 
 import java.io.IOException;
@@ -167,6 +168,8 @@ public class AutoSubmitUrlApplications {
             LOGGER.log(Level.SEVERE, "线程池等待终止时发生异常", e.getMessage());
             Thread.currentThread().interrupt();
         }
+        // 提交结束后停止 Google token 后台刷新线程，避免拖慢进程退出
+        GoogleCredentialManager.shutdown();
     }
 
     /**
@@ -1,22 +1,18 @@
 package cn.imzjw.service;
 
+import cn.imzjw.utils.GoogleCredentialManager;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
 import com.google.api.client.http.*;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.JsonFactory;
-import com.google.api.client.json.jackson2.JacksonFactory;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.logging.Level;
@@ -47,10 +43,6 @@ public class AutoSubmitUrlServiceImpl {
      * 百度 的 URL 提交 API
      */
     private static final String BAIDU_URL_SUBMISSION_API = "http://data.zz.baidu.com/urls";
-    /**
-     * Google Indexing API
-     */
-    private static final String SCOPES = "https://www.googleapis.com/auth/indexing";
     /**
      * Google Indexing API
      */
@@ -154,12 +146,9 @@ public class AutoSubmitUrlServiceImpl {
                 LOGGER.log(Level.WARNING, "未找到 google_service.json 文件, 取消提交");
                 return;
             }
-            // 设置HTTP传输和JSON工厂
-            HttpTransport httpTransport = new NetHttpTransport();
-            JsonFactory jsonFactory = new JacksonFactory();
-            // 读取服务账户的认证文件
-            FileInputStream in = new FileInputStream(GOOGLE_SERVICE_JSON);
-            GoogleCredential credentials = GoogleCredential.fromStream(in, httpTransport, jsonFactory).createScoped(Collections.singleton(SCOPES));
+            // 复用共享的HTTP传输，凭证及 access token 由缓存提供，避免每次都重新读取文件并换取 token
+            HttpTransport httpTransport = GoogleCredentialManager.getHttpTransport();
+            GoogleCredential credentials = GoogleCredentialManager.getCredential(GOOGLE_SERVICE_JSON);
             // 设置API的请求地址
             GenericUrl genericUrl = new GenericUrl(END_POINT);
             // 创建请求工厂
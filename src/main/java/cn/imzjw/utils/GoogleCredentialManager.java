@@ -0,0 +1,442 @@
+package cn.imzjw.utils;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.auth.oauth2.CredentialRefreshListener;
+import com.google.api.client.auth.oauth2.TokenErrorResponse;
+import com.google.api.client.auth.oauth2.TokenResponse;
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import org.json.JSONObject;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author sudojia
+ * @version 1.0
+ * @description Google 服务账户凭证与 access token 缓存
+ * @create 2026-10-19 09:14
+ * @github https://github.com/sudojia
+ * @website https://blog.imzjw.cn
+ */
+public class GoogleCredentialManager {
+    /**
+     * 日志
+     */
+    private static final Logger LOGGER = Logger.getLogger(GoogleCredentialManager.class.getName());
+    /**
+     * Google Indexing API 授权范围
+     */
+    private static final String SCOPES = "https://www.googleapis.com/auth/indexing";
+    /**
+     * 本地加密缓存文件，保存各服务账户的 access token
+     */
+    private static final String TOKEN_CACHE_FILE = ".google_token_cache";
+    /**
+     * 本地缓存密钥的环境变量（Base64 编码的 32 字节随机密钥），不填则只在内存中缓存
+     */
+    private static final String TOKEN_CACHE_KEY = "GOOGLE_TOKEN_CACHE_KEY";
+    /**
+     * 提前刷新时间（毫秒），token 剩余有效期少于该值即视为过期
+     */
+    private static final long REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * 后台刷新失败后的首次重试间隔（毫秒）
+     */
+    private static final long RETRY_INITIAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    /**
+     * 后台刷新失败后的最大重试间隔（毫秒）
+     */
+    private static final long RETRY_MAX_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    /**
+     * 加密算法
+     */
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    /**
+     * AES 密钥长度（字节）
+     */
+    private static final int KEY_LENGTH = 32;
+    /**
+     * GCM 初始向量长度
+     */
+    private static final int IV_LENGTH = 12;
+    /**
+     * GCM 认证标签长度
+     */
+    private static final int TAG_LENGTH = 128;
+    /**
+     * 本地缓存密钥，未配置或配置不合法时为 null
+     */
+    private static final byte[] CACHE_KEY = loadCacheKey();
+    /**
+     * 共享的 HTTP 传输
+     */
+    private static final HttpTransport HTTP_TRANSPORT = new NetHttpTransport();
+    /**
+     * 共享的 JSON 工厂
+     */
+    private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
+    /**
+     * 已加载的凭证，key 为认证文件路径
+     */
+    private static final Map<String, GoogleCredential> CREDENTIALS = new ConcurrentHashMap<>();
+    /**
+     * 已安排的后台刷新任务，key 为服务账户 id，每个账户最多一个
+     */
+    private static final Map<String, ScheduledFuture<?>> REFRESH_TASKS = new ConcurrentHashMap<>();
+    /**
+     * 后台刷新线程，首次需要时创建，shutdown 后可重新创建
+     */
+    private static ScheduledExecutorService scheduler;
+    /**
+     * 本地缓存文件读写锁
+     */
+    private static final Object CACHE_FILE_LOCK = new Object();
+
+    /**
+     * 获取共享的 HTTP 传输，避免每次请求都重新创建。
+     *
+     * @return HTTP 传输
+     */
+    public static HttpTransport getHttpTransport() {
+        return HTTP_TRANSPORT;
+    }
+
+    /**
+     * 获取带有效 access token 的凭证。
+     * 每个认证文件只读取一次；token 优先取内存缓存，其次取本地加密缓存，都不可用时才向 Google 换取新的 token。
+     *
+     * @param serviceJsonPath 服务账户认证文件路径
+     * @return 已设置 access token 的凭证
+     * @throws IOException 读取认证文件或换取 token 失败
+     */
+    public static GoogleCredential getCredential(String serviceJsonPath) throws IOException {
+        GoogleCredential credential = CREDENTIALS.get(serviceJsonPath);
+        if (credential == null) {
+            synchronized (CREDENTIALS) {
+                credential = CREDENTIALS.get(serviceJsonPath);
+                if (credential == null) {
+                    credential = loadCredential(serviceJsonPath);
+                    CREDENTIALS.put(serviceJsonPath, credential);
+                }
+            }
+        }
+        ensureFreshToken(credential);
+        return credential;
+    }
+
+    /**
+     * 停止后台刷新线程，并取消所有待执行的刷新任务。
+     * 一次性运行的程序在提交结束后调用，避免遗留线程拖慢进程退出；
+     * 已加载的凭证和 token 仍保留，之后再调用 getCredential 会重新创建刷新线程。
+     */
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        REFRESH_TASKS.clear();
+    }
+
+    /**
+     * 获取后台刷新线程，不存在时创建，设为守护线程以免阻止程序退出。
+     *
+     * @return 刷新线程池
+     */
+    private static synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "google-token-refresher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * 读取服务账户认证文件并创建凭证。
+     * 凭证上挂载刷新监听器，无论由谁触发刷新（本类、临近过期或 401 响应），新 token 都会写入本地缓存。
+     *
+     * @param serviceJsonPath 服务账户认证文件路径
+     * @return 凭证
+     * @throws IOException 读取失败
+     */
+    private static GoogleCredential loadCredential(String serviceJsonPath) throws IOException {
+        try (InputStream in = new FileInputStream(serviceJsonPath)) {
+            GoogleCredential credential = GoogleCredential.fromStream(in, HTTP_TRANSPORT, JSON_FACTORY);
+            return credential.createScoped(Collections.singleton(SCOPES)).toBuilder()
+                    .addRefreshListener(newCacheListener(credential.getServiceAccountId()))
+                    .build();
+        }
+    }
+
+    /**
+     * 创建将刷新结果同步到本地缓存的监听器。
+     *
+     * @param accountId 服务账户 id
+     * @return 刷新监听器
+     */
+    private static CredentialRefreshListener newCacheListener(String accountId) {
+        return new CredentialRefreshListener() {
+            @Override
+            public void onTokenResponse(Credential credential, TokenResponse tokenResponse) {
+                writeCachedToken(accountId, credential.getAccessToken(), credential.getExpirationTimeMilliseconds());
+            }
+
+            @Override
+            public void onTokenErrorResponse(Credential credential, TokenErrorResponse tokenErrorResponse) {
+                // 刷新被拒绝时清除缓存，避免后续运行继续使用失效的 token
+                writeCachedToken(accountId, null, null);
+            }
+        };
+    }
+
+    /**
+     * 确保凭证持有未过期的 access token，并安排后台提前刷新。
+     *
+     * @param credential 凭证
+     * @throws IOException 换取 token 失败
+     */
+    private static void ensureFreshToken(GoogleCredential credential) throws IOException {
+        synchronized (credential) {
+            if (!isTokenValid(credential.getAccessToken(), credential.getExpirationTimeMilliseconds())) {
+                JSONObject cached = readCachedToken(credential.getServiceAccountId());
+                if (cached != null) {
+                    credential.setAccessToken(cached.getString("accessToken"));
+                    credential.setExpirationTimeMilliseconds(cached.getLong("expiresAt"));
+                    LOGGER.log(Level.INFO, "使用本地缓存的 Google access token");
+                } else {
+                    refreshToken(credential);
+                }
+            }
+        }
+        scheduleRefresh(getScheduler(), credential, getRefreshDelay(credential), RETRY_INITIAL_MILLIS, false);
+    }
+
+    /**
+     * 向 Google 换取新的 access token，结果由刷新监听器写入本地缓存。
+     *
+     * @param credential 凭证
+     * @throws IOException 换取 token 失败
+     */
+    private static void refreshToken(GoogleCredential credential) throws IOException {
+        if (!credential.refreshToken()) {
+            throw new IOException("Google access token 刷新失败");
+        }
+    }
+
+    /**
+     * 计算距离下次提前刷新的时间。
+     *
+     * @param credential 凭证
+     * @return 延迟毫秒数
+     */
+    private static long getRefreshDelay(GoogleCredential credential) {
+        Long expiresAt = credential.getExpirationTimeMilliseconds();
+        if (expiresAt == null) {
+            return 0;
+        }
+        return Math.max(0, expiresAt - REFRESH_AHEAD_MILLIS - System.currentTimeMillis());
+    }
+
+    /**
+     * 安排一次后台刷新，同一服务账户只保留一个待执行任务。
+     *
+     * @param executor    执行刷新的线程池
+     * @param credential  凭证
+     * @param delayMillis 延迟毫秒数
+     * @param retryMillis 本次刷新失败后的重试间隔
+     * @param replace     是否替换已有任务（仅由刷新任务自身续排时为 true）
+     */
+    private static void scheduleRefresh(ScheduledExecutorService executor, GoogleCredential credential, long delayMillis, long retryMillis, boolean replace) {
+        REFRESH_TASKS.compute(credential.getServiceAccountId(), (accountId, existing) -> {
+            if (!replace && existing != null && !existing.isDone()) {
+                return existing;
+            }
+            try {
+                return executor.schedule(() -> backgroundRefresh(executor, credential, retryMillis), delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // 该线程池已被 shutdown，不再续排，也不覆盖新线程池中已安排的任务
+                return existing;
+            }
+        });
+    }
+
+    /**
+     * 后台刷新 token，成功后按新的过期时间续排，失败则按指数退避重试。
+     * 续排只提交到当前线程池，shutdown 后不会因此重新创建刷新线程。
+     *
+     * @param executor    执行刷新的线程池
+     * @param credential  凭证
+     * @param retryMillis 本次失败后的重试间隔
+     */
+    private static void backgroundRefresh(ScheduledExecutorService executor, GoogleCredential credential, long retryMillis) {
+        try {
+            refreshToken(credential);
+            LOGGER.log(Level.INFO, "Google access token 已在后台刷新");
+            scheduleRefresh(executor, credential, getRefreshDelay(credential), RETRY_INITIAL_MILLIS, true);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "后台刷新 Google access token 失败，" + retryMillis / 1000 + " 秒后重试：" + e.getMessage());
+            scheduleRefresh(executor, credential, retryMillis, Math.min(retryMillis * 2, RETRY_MAX_MILLIS), true);
+        }
+    }
+
+    /**
+     * 判断 token 是否可用，剩余有效期不足 REFRESH_AHEAD_MILLIS 视为不可用。
+     *
+     * @param accessToken access token
+     * @param expiresAt   过期时间戳（毫秒）
+     * @return 是否可用
+     */
+    private static boolean isTokenValid(String accessToken, Long expiresAt) {
+        return accessToken != null && expiresAt != null && expiresAt - System.currentTimeMillis() > REFRESH_AHEAD_MILLIS;
+    }
+
+    /**
+     * 从本地加密缓存中读取指定服务账户的 token。
+     *
+     * @param accountId 服务账户 id
+     * @return 包含 accessToken 和 expiresAt 的 JSON 对象，不存在或已过期时返回 null
+     */
+    private static JSONObject readCachedToken(String accountId) {
+        if (CACHE_KEY == null) {
+            return null;
+        }
+        synchronized (CACHE_FILE_LOCK) {
+            JSONObject entry = readCacheFile().optJSONObject(accountId);
+            if (entry == null || !isTokenValid(entry.optString("accessToken", null), entry.optLong("expiresAt"))) {
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * 将 token 写入本地加密缓存，accessToken 为 null 时删除该账户的缓存。
+     * 先写入仅当前用户可读写的临时文件，再原子替换缓存文件，避免其他进程读到不完整的内容。
+     *
+     * @param accountId   服务账户 id
+     * @param accessToken access token
+     * @param expiresAt   过期时间戳（毫秒）
+     */
+    private static void writeCachedToken(String accountId, String accessToken, Long expiresAt) {
+        if (CACHE_KEY == null) {
+            return;
+        }
+        synchronized (CACHE_FILE_LOCK) {
+            JSONObject cache = readCacheFile();
+            if (accessToken == null || expiresAt == null) {
+                if (cache.remove(accountId) == null) {
+                    return;
+                }
+            } else {
+                JSONObject entry = new JSONObject();
+                entry.put("accessToken", accessToken);
+                entry.put("expiresAt", expiresAt);
+                cache.put(accountId, entry);
+            }
+            Path target = Paths.get(TOKEN_CACHE_FILE).toAbsolutePath();
+            Path temp = null;
+            try {
+                byte[] iv = new byte[IV_LENGTH];
+                new SecureRandom().nextBytes(iv);
+                Cipher cipher = Cipher.getInstance(CIPHER);
+                cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(CACHE_KEY, "AES"), new GCMParameterSpec(TAG_LENGTH, iv));
+                byte[] encrypted = cipher.doFinal(cache.toString().getBytes(StandardCharsets.UTF_8));
+                byte[] data = new byte[iv.length + encrypted.length];
+                System.arraycopy(iv, 0, data, 0, iv.length);
+                System.arraycopy(encrypted, 0, data, iv.length, encrypted.length);
+                if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                    temp = Files.createTempFile(target.getParent(), TOKEN_CACHE_FILE, ".tmp",
+                            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+                } else {
+                    temp = Files.createTempFile(target.getParent(), TOKEN_CACHE_FILE, ".tmp");
+                }
+                Files.write(temp, Base64.getEncoder().encode(data));
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | GeneralSecurityException e) {
+                LOGGER.log(Level.WARNING, "写入 Google token 缓存失败：" + e.getMessage());
+            } finally {
+                if (temp != null) {
+                    try {
+                        Files.deleteIfExists(temp);
+                    } catch (IOException ignored) {
+                        // 临时文件清理失败不影响提交
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取并解密本地缓存文件，文件不存在或无法解密时返回空对象。
+     *
+     * @return 缓存内容
+     */
+    private static JSONObject readCacheFile() {
+        Path file = Paths.get(TOKEN_CACHE_FILE);
+        if (!Files.exists(file)) {
+            return new JSONObject();
+        }
+        try {
+            byte[] data = Base64.getDecoder().decode(Files.readAllBytes(file));
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(CACHE_KEY, "AES"), new GCMParameterSpec(TAG_LENGTH, data, 0, IV_LENGTH));
+            byte[] decrypted = cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH);
+            return new JSONObject(new String(decrypted, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "读取 Google token 缓存失败，将重新获取：" + e.getMessage());
+            return new JSONObject();
+        }
+    }
+
+    /**
+     * 读取环境变量中的缓存密钥，要求为 Base64 编码的 32 字节随机密钥（如 openssl rand -base64 32 生成）。
+     *
+     * @return 256 位密钥，未设置或不合法时返回 null
+     */
+    private static byte[] loadCacheKey() {
+        String value = System.getenv(TOKEN_CACHE_KEY);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            byte[] key = Base64.getDecoder().decode(value.trim());
+            if (key.length == KEY_LENGTH) {
+                return key;
+            }
+        } catch (IllegalArgumentException ignored) {
+            // 非 Base64 内容，按不合法处理
+        }
+        LOGGER.log(Level.WARNING, TOKEN_CACHE_KEY + " 须为 Base64 编码的 32 字节随机密钥，已禁用本地 token 缓存");
+        return null;
+    }
+}